@@ -3,7 +3,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ CardGameTest.class, CardTest.class, PlayerTest.class })
+@SuiteClasses({ CardGameTest.class, CardTest.class, OutputLogReaderTest.class, PackArchiveTest.class, PlayerTest.class })
 public class AllTests {
 
 }
@@ -30,16 +30,57 @@ public class CardDeck {
 	 */
 	public synchronized void addCard(Card card) {
 		cards.addLast(card);
+		if (cards.size() == 1) {
+			// a player running ahead may be waiting for this card
+			this.notifyAll();
+		}
 	}
 
 	/**
-	 * Removes and returns a card from the top of the deck
+	 * Removes and returns a card from the top of the deck, waiting for a card
+	 * to be added if the deck is empty
 	 * @return Card: The card removed
 	 */
 	public synchronized Card takeCard() {
+		while (cards.isEmpty()) {
+			try {
+				this.wait();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
 		return cards.removeFirst();
 	}
 
+	/**
+	 * Reverses the latest addCard, removing the card from the end of the deck
+	 * @return Card: The card removed
+	 */
+	public synchronized Card undoAdd() {
+		return cards.removeLast();
+	}
+
+	/**
+	 * Reverses a takeCard, putting the card back on top of the deck
+	 * @param card Card: The card that was taken
+	 */
+	public synchronized void undoTake(Card card) {
+		cards.addFirst(card);
+	}
+
+	/**
+	 * Copies the value of every card currently in the deck, from top to bottom
+	 * @return int[]: the card values
+	 */
+	public synchronized int[] getCardValues() {
+		int[] values = new int[cards.size()];
+		int i = 0;
+		for (Card c : cards) {
+			values[i++] = c.getValue();
+		}
+		return values;
+	}
+
 	/**
 	 * Getter for the ID of this deck instance
 	 * @return int: the deckID
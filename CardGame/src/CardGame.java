@@ -38,6 +38,28 @@ public class CardGame extends Thread {
      * The number of players left still in the game
      */
     private int playerLeft = 0;
+    /**
+     * The number of rounds that have been completed by every player
+     */
+    private int round = 0;
+    /**
+     * The number of rounds players play between sync points. With more than one,
+     * players run ahead and the rounds after the first win are rolled back.
+     */
+    private final int roundsPerSync;
+    /**
+     * The hand each player recorded for every round since the last sync point
+     */
+    private Card[][][] pendingHands;
+    /**
+     * The number of rounds kept at the latest sync point
+     */
+    private int keptRounds;
+    /**
+     * The most recently published view of the game state. It is replaced (never
+     * modified) at the end of every round, so readers need no lock.
+     */
+    private volatile GameSnapshot snapshot;
 
     /**
      * Constructor for a CardGame object. The Player and Deck objects are created and pack
@@ -47,9 +69,26 @@ public class CardGame extends Thread {
      * @param pack  LinkedList<Card>: The pack of cards to hand out to the players and decks
      */
     public CardGame(FileSystemInterface fs, int noPlayers, LinkedList<Card> pack) {
+        this(fs, noPlayers, pack, 1);
+    }
+
+    /**
+     * Constructor for a CardGame object where players play several rounds between
+     * each sync point. The output is the same as playing one round at a time.
+     * @param fs    FileSystemInterface: the file system for writing to file during the game
+     * @param noPlayers int: The number of players participating in the game
+     * @param pack  LinkedList<Card>: The pack of cards to hand out to the players and decks
+     * @param roundsPerSync int: The number of rounds played between sync points
+     */
+    public CardGame(FileSystemInterface fs, int noPlayers, LinkedList<Card> pack, int roundsPerSync) {
+        if (roundsPerSync < 1) {
+            throw new IllegalArgumentException("roundsPerSync must be at least 1");
+        }
         // Set up game folder for player and deck outputs
         // Initialise players and decks
         this.fs = fs;
+        this.roundsPerSync = roundsPerSync;
+        this.pendingHands = new Card[noPlayers][][];
         this.players = new Player[noPlayers];
         this.decks = new CardDeck[noPlayers];
 
@@ -77,6 +116,8 @@ public class CardGame extends Thread {
             decks[counter%noPlayers].addCard(pack.removeFirst());
             counter++;
         }
+
+        publishSnapshot();
     }
 
     /**
@@ -115,52 +156,121 @@ public class CardGame extends Thread {
     /**
      * When a player finishes their turn (a draw and a discard) this checks if the player
      * has all matching cards and declares the winner (and game over) if they do and
-     * stops the player if another player has won.
+     * stops the player if another player has won. If several players win in the same
+     * round, the one with the lowest ID wins, whichever order they finished in.
      * @param player int: ID of the player finishing their turn
      * @param playerHand    Card[]: The hand of the player in question
      */
     public synchronized void finishTurn(int player, Card[] playerHand) {
         waitingPlayer++;
-        boolean winningHand = true;
-        if (winner > 0) {
-            // if there is already a winner you can not win.
-            winningHand = false;
-        }
-        if (winningHand) {
-        	// tests if all this player's cards match
-            int firstCard = playerHand[0].getValue();
-            for (int i = 1; i < playerHand.length; i++) {
-                if (playerHand[i].getValue() != firstCard) {
-                    winningHand = false;
-                    break;
-                }
-            }
-        }
-        if (winningHand) {
+        // the winner is only replaced by a lower player winning in the same round
+        if (isWinningHand(playerHand) && (winner < 0 || player < winner)) {
             winner = player;
         }
         if (waitingPlayer == players.length) {
             waitingPlayer = 0;
+            // every player is waiting on this monitor, so the hands and decks are
+            // still and the copy is consistent
+            publishSnapshot();
+            round++;
             // if we have a winner at the end of the round, we declare the winner.
             if (winner > 0) {
-                for (Player p : players) {
-                    p.finish(winner);
+                declareWinner();
+            }
+            this.notifyAll();
+        } else {
+        	// forces the all players to wait until every player has played a turn
+            try {
+                this.wait();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * When a player finishes a run of rounds between sync points, this records the
+     * hand they held after each round. Once every player has arrived, the earliest
+     * round any player won in is found and every round after it is undone, so the
+     * game ends exactly as if it had been played one round at a time.
+     * @param player int: ID of the player finishing their rounds
+     * @param roundHands    Card[][]: The hand of the player after each round
+     * @return  int: The number of rounds the player should keep and write out
+     */
+    public synchronized int finishRounds(int player, Card[][] roundHands) {
+        waitingPlayer++;
+        pendingHands[player - 1] = roundHands;
+        if (waitingPlayer == players.length) {
+            waitingPlayer = 0;
+            // the lowest player ID is picked when several players win in the same round
+            keptRounds = roundHands.length;
+            for (int r = 0; r < keptRounds && winner < 0; r++) {
+                for (int p = 0; p < players.length; p++) {
+                    if (isWinningHand(pendingHands[p][r])) {
+                        winner = p + 1;
+                        keptRounds = r + 1;
+                        break;
+                    }
                 }
-                for (CardDeck d : decks) {
-                    fs.writeToFile("/deck" + d.getDeckID() + "_output.txt", d.toString());
+            }
+            // undo the latest round first, so each card goes back to where it came from
+            for (int r = roundHands.length - 1; r >= keptRounds; r--) {
+                for (Player p : players) {
+                    p.undoRound(r);
                 }
-                players[winner-1].writeToFile("player " + winner + " wins");
-                System.out.println("player " + winner + " wins.");
+            }
+            round += keptRounds - 1;
+            publishSnapshot();
+            round++;
+            if (winner > 0) {
+                declareWinner();
             }
             this.notifyAll();
         } else {
-        	// forces the all players to wait until every player has played a turn
+            // forces the all players to wait until every player has played their rounds
             try {
                 this.wait();
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
         }
+        return keptRounds;
+    }
+
+    /**
+     * Checks if all the cards in a hand have the same value
+     * @param hand  Card[]: The cards in the hand
+     * @return  Bool: True if the hand wins the game
+     */
+    private static boolean isWinningHand(Card[] hand) {
+        for (int i = 1; i < hand.length; i++) {
+            if (hand[i].getValue() != hand[0].getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells every player the game is over and writes the final deck contents. Each
+     * player writes the result to its own output.
+     */
+    private void declareWinner() {
+        for (Player p : players) {
+            p.finish(winner);
+        }
+        for (CardDeck d : decks) {
+            fs.writeToFile("/deck" + d.getDeckID() + "_output.txt", d.toString());
+        }
+        System.out.println("player " + winner + " wins.");
+    }
+
+    /**
+     * Getter for the number of rounds players play between sync points
+     * @return  int: the rounds per sync point
+     */
+    public int getRoundsPerSync() {
+        return roundsPerSync;
     }
 
     /**
@@ -171,6 +281,30 @@ public class CardGame extends Thread {
         return winner;
     }
 
+    /**
+     * Getter for a consistent view of every hand and deck as they were at the end
+     * of the latest completed round. This does not take the game's lock, so it can
+     * be polled while the game is running without slowing the players down.
+     * @return  GameSnapshot: the latest published snapshot
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Copies the current hands and decks into a new snapshot and publishes it.
+     * Must only be called while no player is mid-turn.
+     */
+    private void publishSnapshot() {
+        int[][] hands = new int[players.length][];
+        int[][] deckValues = new int[decks.length][];
+        for (int i = 0; i < players.length; i++) {
+            hands[i] = players[i].getHandValues();
+            deckValues[i] = decks[i].getCardValues();
+        }
+        snapshot = new GameSnapshot(round, winner, hands, deckValues);
+    }
+
     /**
      * Turns an input file into a valid pack of cards, or throws the necessary error for
      * the problem with the pack.
@@ -184,27 +318,56 @@ public class CardGame extends Thread {
      */
     private static LinkedList<Card> validatePack(String filename, int noCards) throws IOException,
             IncorrectNumberOfCardsException, NumberFormatException {
-        LinkedList<Card> pack = new LinkedList<Card>();
-        BufferedReader reader = new BufferedReader(new FileReader(new File(filename)));
-        String line = reader.readLine();
-        while (line != null) {
-            pack.addLast(new Card(Integer.parseInt(line)));
-            line = reader.readLine();
-        }
-        reader.close();
-
+        LinkedList<Card> pack = readPack(filename);
         if (pack.size() != noCards) {
             throw new IncorrectNumberOfCardsException();
         }
         return pack;
     }
 
+    /**
+     * Reads every card in a pack file, one integer value per line, without checking
+     * how many cards there are.
+     * @param filename  String: path of the pack file
+     * @return  LinkedList<Card>: The cards in the order they appear in the file
+     * @throws IOException If the filename given is invalid
+     * @throws NumberFormatException    If the pack contains invalid characters (anything
+     * that is not an integer)
+     */
+    static LinkedList<Card> readPack(String filename) throws IOException, NumberFormatException {
+        LinkedList<Card> pack = new LinkedList<Card>();
+        BufferedReader reader = new BufferedReader(new FileReader(new File(filename)));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                pack.addLast(new Card(Integer.parseInt(line)));
+                line = reader.readLine();
+            }
+        } finally {
+            reader.close();
+        }
+        return pack;
+    }
+
     /**
      * Takes the user inputs for number of players and pack file location, then
      * creates the game of cards.
-     * @param args
+     * @param args  optionally the number of rounds players play between sync points
      */
     public static void main(String[] args) {
+        int roundsPerSync = 1;
+        if (args.length > 0) {
+            try {
+                roundsPerSync = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                roundsPerSync = 0;
+            }
+            if (roundsPerSync < 1) {
+                System.out.println("Usage: CardGame [roundsPerSync], where roundsPerSync is a "
+                        + "whole number of at least 1.\nPlaying one round at a time.");
+                roundsPerSync = 1;
+            }
+        }
         Scanner input = new Scanner(System.in);
         System.out.println("Please enter the number of players");
         int noPlayers = Integer.parseInt(input.nextLine());
@@ -236,7 +399,8 @@ public class CardGame extends Thread {
         CardGame cg = new CardGame(
                 new FileSystemInterface.DefaultImplementation(CardGame.generateOutputPath()),
                 noPlayers,
-                pack);
+                pack,
+                roundsPerSync);
 
         cg.startGame();
     }
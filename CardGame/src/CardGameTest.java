@@ -4,6 +4,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.LinkedList;
 
@@ -29,21 +31,66 @@ public class CardGameTest {
 	    }
 	    initialWinGame = new CardGame(fs, DEFAULT_TEST_PLAYER_NUMBER, INITIAL_WIN_PACK);
 	    
-	    NORMAL_GAME_PACK = new LinkedList<Card>();
-	    // normal pack ensures player 1 always wins on the 3rd round
+	    NORMAL_GAME_PACK = normalGamePack();
+	    normalGame = new CardGame(fs, DEFAULT_TEST_PLAYER_NUMBER, NORMAL_GAME_PACK);
+
+	}
+	
+	/**
+	 * Creates the normal game pack, which ensures player 1 always wins on the 3rd round
+	 * of a 2 player game
+	 */
+	static LinkedList<Card> normalGamePack() {
+	    LinkedList<Card> pack = new LinkedList<Card>();
 	    for (int i = 0; i < 8; i++) {
 	    	if (i % 2 == 0) {
-	            NORMAL_GAME_PACK.addLast(new Card(1));
-	            NORMAL_GAME_PACK.addLast(new Card(1));
+	            pack.addLast(new Card(1));
+	            pack.addLast(new Card(1));
 	        }else {
-	            NORMAL_GAME_PACK.addLast(new Card(2));
-	            NORMAL_GAME_PACK.addLast(new Card(2));
+	            pack.addLast(new Card(2));
+	            pack.addLast(new Card(2));
 	        }
 	    }
-	    normalGame = new CardGame(fs, DEFAULT_TEST_PLAYER_NUMBER, NORMAL_GAME_PACK);
+	    return pack;
+	}
 
+	/**
+	 * Creates a pack holding cards of the given values, in order
+	 */
+	static LinkedList<Card> packOf(int... values) {
+	    LinkedList<Card> pack = new LinkedList<Card>();
+	    for (int v : values) {
+	        pack.addLast(new Card(v));
+	    }
+	    return pack;
 	}
-	
+
+	/**
+	 * Creates the round index holding the given offsets, as stored by MockFileSystem
+	 */
+	static String roundIndex(long... offsets) {
+	    ByteBuffer index = ByteBuffer.allocate(offsets.length * 8);
+	    for (long offset : offsets) {
+	        index.putLong(offset);
+	    }
+	    return new String(index.array(), StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Waits for a game to finish, giving up after 10 seconds
+	 */
+	static void waitForGame(CardGame game) {
+	    int timeLeft = 10000;
+	    while(timeLeft > 0 && !game.isFinished()) {
+	        try {
+	            Thread.sleep(10);
+	        } catch (Exception e) {
+	            e.printStackTrace();
+	        }
+	        timeLeft -= 10;
+	    }
+	}
+
 	@After
 	public void tearDown() {
 		fs = null;
@@ -61,7 +108,7 @@ public class CardGameTest {
 	        }
 	        timeout -= 10;
 	    }
-	    assertEquals(fs.fakeFS.keySet().size(), 4);
+	    assertEquals(fs.fakeFS.keySet().size(), 6);
 	    assertEquals(fs.fakeFS.get("/player1_output.txt"),
 	        "initial hand 1 1 1 1\n" +
 	        "player 1 wins\n" + 
@@ -87,7 +134,7 @@ public class CardGameTest {
 	        }
 	        timeout -= 10;
 	    }
-	    assertEquals(fs.fakeFS.keySet().size(), 4);
+	    assertEquals(fs.fakeFS.keySet().size(), 6);
 	    assertEquals(fs.fakeFS.get("/player1_output.txt"),
 	        "initial hand 1 2 1 2\n" +
 	        "discards a 2 to deck 2\n" +
@@ -118,6 +165,100 @@ public class CardGameTest {
 		        "final hand: 1 2 2 2\n");
 		assertEquals(fs.fakeFS.get("/deck1_output.txt"), "deck1contents: 2 1 1 1 \n");
 		assertEquals(fs.fakeFS.get("/deck2_output.txt"), "deck2contents: 2 2 2 2 \n");
+		assertEquals(fs.fakeFS.get("/player1_output.idx"), roundIndex(0, 21, 86, 151));
+		assertEquals(fs.fakeFS.get("/player2_output.idx"), roundIndex(0, 21, 86, 151));
+	}
+	
+	@Test
+	public void testSpeculativeGameCase() {
+		// same pack as the normal game, but players run 5 rounds ahead so rounds 4
+		// and 5 must be rolled back
+		MockFileSystem speculativeFS = new MockFileSystem();
+		CardGame speculativeGame = new CardGame(speculativeFS, DEFAULT_TEST_PLAYER_NUMBER,
+				normalGamePack(), 5);
+		normalGame.startGame();
+		speculativeGame.startGame();
+		waitForGame(normalGame);
+		waitForGame(speculativeGame);
+	    assertEquals(1, speculativeGame.getWinner());
+	    assertEquals(3, speculativeGame.getSnapshot().getRound());
+	    assertEquals(fs.fakeFS, speculativeFS.fakeFS);
+	}
+	
+	@Test
+	public void testSpeculativeGameAcrossSyncPoints() {
+		// player 3 wins on the 7th round, so with 2 and 3 rounds per sync point whole
+		// batches are kept before the winning batch is rolled back
+		int[] values = {1, 3, 2, 3, 3, 1, 3, 3, 2, 1, 2, 1, 3, 1, 3, 2, 2, 1, 3, 1, 2, 2, 3, 1};
+		CardGame lockstepGame = new CardGame(fs, 3, packOf(values));
+		lockstepGame.startGame();
+		waitForGame(lockstepGame);
+		assertEquals(3, lockstepGame.getWinner());
+		for (int roundsPerSync = 2; roundsPerSync <= 3; roundsPerSync++) {
+			MockFileSystem speculativeFS = new MockFileSystem();
+			CardGame speculativeGame = new CardGame(speculativeFS, 3, packOf(values), roundsPerSync);
+			speculativeGame.startGame();
+			waitForGame(speculativeGame);
+			assertEquals(3, speculativeGame.getWinner());
+			assertEquals(7, speculativeGame.getSnapshot().getRound());
+			assertEquals(fs.fakeFS, speculativeFS.fakeFS);
+		}
+	}
+	
+	@Test
+	public void testTieGoesToLowestPlayer() {
+		// players 1 and 3 both hold a winning hand after the 5th round
+		int[] values = {1, 2, 1, 2, 2, 2, 3, 3, 2, 3, 3, 3, 3, 3, 3, 2, 1, 1, 1, 1, 2, 1, 1, 3};
+		CardGame speculativeGame = new CardGame(fs, 3, packOf(values), 2);
+		speculativeGame.startGame();
+		waitForGame(speculativeGame);
+		GameSnapshot last = speculativeGame.getSnapshot();
+		assertEquals(1, speculativeGame.getWinner());
+		assertEquals(5, last.getRound());
+		assertArrayEquals(new int[] {1, 1, 1, 1}, last.getHand(1));
+		assertArrayEquals(new int[] {3, 3, 3, 3}, last.getHand(3));
+		assertTrue(fs.fakeFS.get("/player1_output.txt").endsWith(
+				"hand is now 1 1 1 1\n" +
+				"player 1 wins\n" +
+				"player 1 exiting game\n" +
+				"final hand: 1 1 1 1\n"));
+		assertTrue(fs.fakeFS.get("/player3_output.txt").endsWith(
+				"player 1 has informed player 3 that they have won\n" +
+				"player 3 exiting game\n" +
+				"final hand: 3 3 3 3\n"));
+		assertEquals(fs.fakeFS.get("/deck1_output.txt"), "deck1contents: 2 2 1 2 \n");
+
+		// playing one round at a time must pick the same winner, whichever of players
+		// 1 and 3 reaches the end of the round first
+		for (int run = 0; run < 20; run++) {
+			MockFileSystem lockstepFS = new MockFileSystem();
+			CardGame lockstepGame = new CardGame(lockstepFS, 3, packOf(values));
+			lockstepGame.startGame();
+			waitForGame(lockstepGame);
+			assertEquals(1, lockstepGame.getWinner());
+			assertEquals(fs.fakeFS, lockstepFS.fakeFS);
+		}
+	}
+	
+	@Test
+	public void testSnapshot() {
+		GameSnapshot initial = normalGame.getSnapshot();
+		assertEquals(0, initial.getRound());
+		assertEquals(-1, initial.getWinner());
+		assertArrayEquals(new int[] {1, 2, 1, 2}, initial.getHand(1));
+		assertArrayEquals(new int[] {1, 2, 1, 2}, initial.getDeck(2));
+
+		normalGame.startGame();
+		waitForGame(normalGame);
+	    GameSnapshot last = normalGame.getSnapshot();
+	    assertEquals(3, last.getRound());
+	    assertEquals(1, last.getWinner());
+	    assertArrayEquals(new int[] {1, 1, 1, 1}, last.getHand(1));
+	    assertArrayEquals(new int[] {1, 2, 2, 2}, last.getHand(2));
+	    assertArrayEquals(new int[] {2, 1, 1, 1}, last.getDeck(1));
+	    assertArrayEquals(new int[] {2, 2, 2, 2}, last.getDeck(2));
+	    // the initial snapshot is never modified by the game
+	    assertArrayEquals(new int[] {1, 2, 1, 2}, initial.getHand(1));
 	}
 	
 	class MockFileSystem implements FileSystemInterface {
@@ -136,6 +277,11 @@ public class CardGameTest {
 	        content = existingContent + content;
 	        fakeFS.put(path,content);
 		}
+
+		// binary content is stored one character per byte
+		public void writeBytesToFile(String path, byte[] content, int length) {
+		    writeToFile(path, new String(content, 0, length, StandardCharsets.ISO_8859_1));
+		}
     }
 }
 
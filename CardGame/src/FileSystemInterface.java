@@ -1,5 +1,6 @@
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 
@@ -10,6 +11,8 @@ import java.io.IOException;
 public interface FileSystemInterface {
     void writeToFile(String relativePath, String content);
 
+    void writeBytesToFile(String relativePath, byte[] content, int length);
+
     class DefaultImplementation implements FileSystemInterface {
         /**
          * the path all files should be written into
@@ -32,5 +35,17 @@ public interface FileSystemInterface {
                 e.printStackTrace();
             }
         }
+
+        public void writeBytesToFile(String relativePath, byte[] content, int length) {
+            try {
+                File f = new File(this.root + relativePath);
+                f.getParentFile().mkdirs();
+                FileOutputStream out = new FileOutputStream(f, true);
+                out.write(content, 0, length);
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
     }
 }
@@ -0,0 +1,78 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * GameBenchmark class that times the same game, written to real files, when
+ * played one round at a time and with several rounds between sync points.
+ */
+public class GameBenchmark {
+    /**
+     * Plays a game from a random pack and times it
+     * @param noPlayers int: The number of players in the game
+     * @param seed  long: The seed used to create the pack
+     * @param roundsPerSync int: The number of rounds played between sync points
+     * @return long: the time taken in milliseconds
+     * @throws IOException If the output directory can not be created
+     */
+    static long timeGame(int noPlayers, long seed, int roundsPerSync) throws IOException {
+        Random random = new Random(seed);
+        LinkedList<Card> pack = new LinkedList<Card>();
+        for (int i = 0; i < noPlayers * 8; i++) {
+            pack.addLast(new Card(random.nextInt(noPlayers) + 1));
+        }
+        File outputDir = File.createTempFile("CardGame", "");
+        outputDir.delete();
+
+        long start = System.nanoTime();
+        CardGame game = new CardGame(new FileSystemInterface.DefaultImplementation(outputDir.getPath()),
+                noPlayers, pack, roundsPerSync);
+        game.startGame();
+        while (!game.isFinished()) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        long time = (System.nanoTime() - start) / 1000000;
+
+        for (File f : outputDir.listFiles()) {
+            f.delete();
+        }
+        outputDir.delete();
+        return time;
+    }
+
+    /**
+     * Times a game for each number of rounds per sync point given. Usage:
+     * "noPlayers seed roundsPerSync..."
+     * @param args
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: GameBenchmark <noPlayers> <seed> <roundsPerSync>...");
+            return;
+        }
+        try {
+            int noPlayers = Integer.parseInt(args[0]);
+            long seed = Long.parseLong(args[1]);
+            for (int i = 2; i < args.length; i++) {
+                int roundsPerSync = Integer.parseInt(args[i]);
+                // warm up once, then report the best of three
+                timeGame(noPlayers, seed, roundsPerSync);
+                long best = Long.MAX_VALUE;
+                for (int run = 0; run < 3; run++) {
+                    best = Math.min(best, timeGame(noPlayers, seed, roundsPerSync));
+                }
+                System.out.println(noPlayers + " players, " + roundsPerSync
+                        + " rounds per sync: " + best + " ms");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("The arguments must be integers.");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
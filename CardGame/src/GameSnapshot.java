@@ -0,0 +1,110 @@
+/**
+ * GameSnapshot class holding an immutable, point-in-time copy of a game's
+ * state: the round it was taken at, every player's hand and every deck's
+ * contents. Snapshots are published by the CardGame at the end of each round,
+ * so they can be read from any thread without taking the game's lock.
+ */
+public final class GameSnapshot {
+    /**
+     * The round this snapshot was taken at the end of (round 0 is the initial deal)
+     */
+    private final int round;
+    /**
+     * The ID of the winning player, or -1 if nobody has won yet
+     */
+    private final int winner;
+    /**
+     * The card values of each player's hand, indexed by playerID - 1
+     */
+    private final int[][] hands;
+    /**
+     * The card values held by each deck, indexed by deckID - 1
+     */
+    private final int[][] decks;
+
+    /**
+     * Constructor for a GameSnapshot. The arrays given are owned by the snapshot
+     * and must not be modified afterwards.
+     * @param round int: The round this snapshot was taken at the end of
+     * @param winner    int: The ID of the winning player, or -1 if there is none
+     * @param hands int[][]: The card values of each player's hand
+     * @param decks int[][]: The card values held by each deck
+     */
+    GameSnapshot(int round, int winner, int[][] hands, int[][] decks) {
+        this.round = round;
+        this.winner = winner;
+        this.hands = hands;
+        this.decks = decks;
+    }
+
+    /**
+     * Getter for the round this snapshot was taken at
+     * @return int: the round number
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * Getter for the ID of the winning player at the time of the snapshot
+     * @return int: the winner's playerID, or -1 if nobody had won
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Getter for the number of players in the game
+     * @return int: the number of players
+     */
+    public int getNumberOfPlayers() {
+        return hands.length;
+    }
+
+    /**
+     * Getter for the card values of a player's hand
+     * @param playerID  int: ID of the player
+     * @return int[]: a copy of the values in the player's hand
+     */
+    public int[] getHand(int playerID) {
+        return hands[playerID - 1].clone();
+    }
+
+    /**
+     * Getter for the card values held by a deck, from top to bottom
+     * @param deckID    int: ID of the deck
+     * @return int[]: a copy of the values in the deck
+     */
+    public int[] getDeck(int deckID) {
+        return decks[deckID - 1].clone();
+    }
+
+    /**
+     * Turns the snapshot into a string, one line for the round and one line
+     * per hand and deck
+     * @return String: the snapshot in text form
+     */
+    public String toString() {
+        String txt = "round " + round + (winner > 0 ? " (player " + winner + " wins)" : "") + "\n";
+        for (int i = 0; i < hands.length; i++) {
+            txt += "player" + (i + 1) + " hand: " + valuesToString(hands[i]) + "\n";
+        }
+        for (int i = 0; i < decks.length; i++) {
+            txt += "deck" + (i + 1) + " contents: " + valuesToString(decks[i]) + "\n";
+        }
+        return txt;
+    }
+
+    /**
+     * Creates a string of card values separated by whitespace
+     * @param values    int[]: the values to join
+     * @return String
+     */
+    private static String valuesToString(int[] values) {
+        String txt = "";
+        for (int v : values) {
+            txt += v + " ";
+        }
+        return txt;
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * OutputLogReader class for looking into the output of a finished game. It uses
+ * the round index written next to each player's output file to seek straight to
+ * a range of rounds instead of reading the whole file.
+ */
+public class OutputLogReader {
+    /**
+     * The directory the game's output was written into
+     */
+    private final File gameDir;
+
+    /**
+     * Constructor for an OutputLogReader over a single game's output
+     * @param gameDir   File: the directory the game's output was written into
+     */
+    public OutputLogReader(File gameDir) {
+        this.gameDir = gameDir;
+    }
+
+    /**
+     * Counts the players whose output is in the game directory
+     * @return int: the number of players
+     */
+    public int getNumberOfPlayers() {
+        int players = 0;
+        while (new File(gameDir, "player" + (players + 1) + "_output.txt").isFile()) {
+            players++;
+        }
+        return players;
+    }
+
+    /**
+     * Counts the rounds in a player's round index
+     * @param playerID  int: ID of the player
+     * @return long: the number of rounds indexed
+     * @throws IOException If the index file can not be read
+     */
+    public long getRoundCount(int playerID) throws IOException {
+        return indexFile(playerID).length() / 8;
+    }
+
+    /**
+     * Reads where a round starts in a player's output file, seeking straight to its
+     * entry in the round index
+     * @param playerID  int: ID of the player
+     * @param round int: the round to look up
+     * @return long: the byte offset of the round in the output file
+     * @throws IOException If the index file can not be read or does not hold the round
+     */
+    public long getRoundOffset(int playerID, int round) throws IOException {
+        RandomAccessFile index = new RandomAccessFile(indexFile(playerID), "r");
+        try {
+            return readOffset(index, round);
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Reads the part of a player's output covering a range of rounds. Only the
+     * index entries for the start and end of the range are read. The last round
+     * also includes the end of game lines that follow it.
+     * @param playerID  int: ID of the player
+     * @param fromRound int: the first round to read
+     * @param toRound   int: the last round to read
+     * @return String: the output for those rounds, empty if none of them were played
+     * @throws IOException If the output or index file can not be read, or the range
+     * is too large to hold in a String (use copyRounds instead)
+     */
+    public String readRounds(int playerID, int fromRound, int toRound) throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        copyRounds(playerID, fromRound, toRound, text, Integer.MAX_VALUE - 8);
+        return new String(text.toByteArray(), "US-ASCII");
+    }
+
+    /**
+     * Copies the part of a player's output covering a range of rounds to a stream,
+     * a buffer at a time, so ranges of any size can be read.
+     * @param playerID  int: ID of the player
+     * @param fromRound int: the first round to copy
+     * @param toRound   int: the last round to copy
+     * @param out   OutputStream: where to copy the output to
+     * @throws IOException If the output or index file can not be read
+     */
+    public void copyRounds(int playerID, int fromRound, int toRound, OutputStream out)
+            throws IOException {
+        copyRounds(playerID, fromRound, toRound, out, Long.MAX_VALUE);
+    }
+
+    /**
+     * Copies a range of rounds to a stream, refusing ranges above a size limit
+     * @param playerID  int: ID of the player
+     * @param fromRound int: the first round to copy
+     * @param toRound   int: the last round to copy
+     * @param out   OutputStream: where to copy the output to
+     * @param limit long: the largest number of bytes to copy
+     * @throws IOException If the files can not be read or the range is over the limit
+     */
+    private void copyRounds(int playerID, int fromRound, int toRound, OutputStream out,
+            long limit) throws IOException {
+        fromRound = Math.max(fromRound, 0);
+        RandomAccessFile index = new RandomAccessFile(indexFile(playerID), "r");
+        RandomAccessFile log = new RandomAccessFile(
+                new File(gameDir, "player" + playerID + "_output.txt"), "r");
+        try {
+            long rounds = index.length() / 8;
+            if (fromRound >= rounds || toRound < fromRound) {
+                return;
+            }
+            long start = readOffset(index, fromRound);
+            long end = (toRound + 1L < rounds) ? readOffset(index, toRound + 1) : log.length();
+            if (start < 0 || start > end || end > log.length()) {
+                throw new IOException("round index for player " + playerID
+                        + " does not match their output file");
+            }
+            if (end - start > limit) {
+                throw new IOException("rounds " + fromRound + " to " + toRound + " hold "
+                        + (end - start) + " bytes, too many to read at once");
+            }
+            byte[] buffer = new byte[65536];
+            log.seek(start);
+            for (long left = end - start; left > 0; ) {
+                int read = log.read(buffer, 0, (int) Math.min(buffer.length, left));
+                if (read < 0) {
+                    throw new IOException("output file for player " + playerID + " ended early");
+                }
+                out.write(buffer, 0, read);
+                left -= read;
+            }
+        } finally {
+            index.close();
+            log.close();
+        }
+    }
+
+    /**
+     * Reads the final contents written for a deck
+     * @param deckID    int: ID of the deck
+     * @return String: the deck's output, empty if the game did not finish
+     * @throws IOException If the deck output can not be read
+     */
+    public String readDeck(int deckID) throws IOException {
+        File f = new File(gameDir, "deck" + deckID + "_output.txt");
+        if (!f.isFile()) {
+            return "";
+        }
+        String txt = "";
+        BufferedReader reader = new BufferedReader(new FileReader(f));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                txt += line + "\n";
+                line = reader.readLine();
+            }
+        } finally {
+            reader.close();
+        }
+        return txt;
+    }
+
+    /**
+     * Finds a player's round index file
+     * @param playerID  int: ID of the player
+     * @return File: the index file
+     */
+    private File indexFile(int playerID) {
+        return new File(gameDir, "player" + playerID + "_output.idx");
+    }
+
+    /**
+     * Reads a single entry of a round index
+     * @param index RandomAccessFile: the open index file
+     * @param round long: the round to look up
+     * @return long: the byte offset of the round in the output file
+     * @throws IOException If the index does not hold the round
+     */
+    private static long readOffset(RandomAccessFile index, long round) throws IOException {
+        if (round < 0 || (round + 1) * 8 > index.length()) {
+            throw new IOException("round " + round + " is not in the round index");
+        }
+        index.seek(round * 8);
+        return index.readLong();
+    }
+
+    /**
+     * Prints a range of rounds for every player, followed by every deck. Usage:
+     * "gameDirectory fromRound [toRound]"
+     * @param args
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            System.out.println("Usage: OutputLogReader <gameDirectory> <fromRound> [toRound]");
+            return;
+        }
+        int fromRound;
+        int toRound;
+        try {
+            fromRound = Integer.parseInt(args[1]);
+            toRound = (args.length == 3) ? Integer.parseInt(args[2]) : fromRound;
+        } catch (NumberFormatException e) {
+            System.out.println("The rounds given must be integers.");
+            return;
+        }
+        try {
+            OutputLogReader reader = new OutputLogReader(new File(args[0]));
+            int players = reader.getNumberOfPlayers();
+            for (int p = 1; p <= players; p++) {
+                System.out.println("== player " + p + " rounds " + fromRound + " to " + toRound);
+                reader.copyRounds(p, fromRound, toRound, System.out);
+                System.out.flush();
+            }
+            for (int d = 1; d <= players; d++) {
+                System.out.print(reader.readDeck(d));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class OutputLogReaderTest {
+	File gameDir;
+	OutputLogReader reader;
+
+	@Before
+	public void setup() throws IOException {
+		gameDir = File.createTempFile("CardGame", "");
+		gameDir.delete();
+
+		// the normal game from CardGameTest, player 1 always wins on the 3rd round
+		CardGame game = new CardGame(new FileSystemInterface.DefaultImplementation(gameDir.getPath()),
+				2, CardGameTest.normalGamePack());
+		game.startGame();
+		CardGameTest.waitForGame(game);
+		reader = new OutputLogReader(gameDir);
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : gameDir.listFiles()) {
+			f.delete();
+		}
+		gameDir.delete();
+	}
+
+	@Test
+	public void testRoundIndex() throws IOException {
+		assertEquals(2, reader.getNumberOfPlayers());
+		assertEquals(4, reader.getRoundCount(1));
+		assertEquals(0, reader.getRoundOffset(1, 0));
+		assertEquals(151, reader.getRoundOffset(1, 3));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRoundOffsetPastEndOfIndex() throws IOException {
+		reader.getRoundOffset(1, 4);
+	}
+
+	@Test
+	public void testReadRounds() throws IOException {
+		assertEquals("discards a 1 to deck 1\n" +
+				"draws a 2 from deck 2\n" +
+				"hand is now 1 2 2 2\n", reader.readRounds(2, 2, 2));
+		assertEquals("discards a 2 to deck 2\n" +
+				"draws a 1 from deck 1\n" +
+				"hand is now 1 1 1 1\n" +
+				"player 1 wins\n" +
+				"player 1 exiting game\n" +
+				"final hand: 1 1 1 1\n", reader.readRounds(1, 3, 10));
+		assertEquals("", reader.readRounds(1, 4, 10));
+		assertEquals("deck1contents: 2 1 1 1 \n", reader.readDeck(1));
+	}
+
+	@Test
+	public void testCopyRounds() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		reader.copyRounds(1, 0, 10, out);
+		assertEquals(reader.readRounds(1, 0, 10), out.toString("US-ASCII"));
+		assertEquals(new File(gameDir, "player1_output.txt").length(), out.size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorruptIndex() throws IOException {
+		// point round 1 past the end of the output file
+		RandomAccessFile index = new RandomAccessFile(new File(gameDir, "player1_output.idx"), "rw");
+		index.seek(8);
+		index.writeLong(1000000);
+		index.close();
+		reader.readRounds(1, 0, 0);
+	}
+}
@@ -0,0 +1,408 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * PackArchive class giving random and parallel access to many packs of cards
+ * stored back-to-back in a single memory-mapped file. The file is mapped in
+ * windows, so archives larger than 2GB can be read.
+ *
+ * The archive layout (all values big-endian) is:
+ * a header of the magic number, the format version and the number of entries;
+ * an index holding the byte offset (long) and number of players (int) of each
+ * entry; then the card values (int) of every pack, 8 per player.
+ */
+public class PackArchive implements Closeable {
+    /**
+     * Magic number at the start of every archive, "CGPA" in ASCII
+     */
+    static final int MAGIC = 0x43475041;
+    /**
+     * The archive format version written by this class
+     */
+    static final int VERSION = 1;
+    /**
+     * The size in bytes of the header
+     */
+    static final int HEADER_SIZE = 12;
+    /**
+     * The size in bytes of a single index entry
+     */
+    static final int INDEX_ENTRY_SIZE = 12;
+    /**
+     * The number of cards in a pack for each player in the game
+     */
+    static final int CARDS_PER_PLAYER = 8;
+    /**
+     * The number of bytes each mapped window starts after the previous one
+     */
+    static final long WINDOW_SIZE = 1L << 30;
+    /**
+     * The number of bytes each window extends into the next, so that any int or
+     * long can be read from the window it starts in
+     */
+    private static final int WINDOW_OVERLAP = 8;
+
+    /**
+     * Callback used when iterating over the packs in an archive
+     */
+    public interface PackConsumer {
+        /**
+         * Called once for every pack in the archive
+         * @param entry int: the index of the pack in the archive
+         * @param noPlayers int: the number of players the pack is for
+         * @param pack  LinkedList<Card>: a fresh copy of the pack's cards
+         */
+        void accept(int entry, int noPlayers, LinkedList<Card> pack);
+    }
+
+    /**
+     * The channel the archive is mapped from
+     */
+    private final FileChannel channel;
+    /**
+     * The archive file mapped into memory, one window per WINDOW_SIZE bytes. Only
+     * absolute reads are made on them, so they can be shared between threads.
+     */
+    private final MappedByteBuffer[] windows;
+    /**
+     * The number of bytes each window starts after the previous one
+     */
+    private final long windowSize;
+    /**
+     * The length of the archive file in bytes
+     */
+    private final long length;
+    /**
+     * The number of packs in the archive
+     */
+    private final int size;
+
+    /**
+     * Constructor for a PackArchive, mapping the given file and checking its header.
+     * @param file  File: the archive file
+     * @throws IOException If the file can not be read or is not a pack archive
+     */
+    public PackArchive(File file) throws IOException {
+        this(file, WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor for a PackArchive, mapping the given file in windows of the
+     * given size and checking its header.
+     * @param file  File: the archive file
+     * @param windowSize    long: the number of bytes each window starts after the last
+     * @throws IOException If the file can not be read or is not a pack archive
+     */
+    PackArchive(File file, long windowSize) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        this.channel = raf.getChannel();
+        this.windowSize = windowSize;
+        try {
+            this.length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException(file + " is not a valid pack archive");
+            }
+            this.windows = new MappedByteBuffer[(int) ((length + windowSize - 1) / windowSize)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = i * windowSize;
+                long end = Math.min(length, start + windowSize + WINDOW_OVERLAP);
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            }
+            if (getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a pack archive");
+            }
+            if (getInt(4) != VERSION) {
+                throw new IOException(file + " has unsupported archive version " + getInt(4));
+            }
+            this.size = getInt(8);
+            if (size < 0 || dataStart() > length) {
+                throw new IOException(file + " has a truncated index");
+            }
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Getter for the number of packs in the archive
+     * @return int: the number of packs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter for the number of players a pack was created for
+     * @param entry int: the index of the pack in the archive
+     * @return int: the number of players
+     */
+    public int getNumberOfPlayers(int entry) {
+        return getInt(indexPosition(entry) + 8);
+    }
+
+    /**
+     * Reads a single pack from the archive, ready to be handed to a CardGame.
+     * @param entry int: the index of the pack in the archive
+     * @return LinkedList<Card>: a fresh copy of the pack's cards
+     */
+    public LinkedList<Card> getPack(int entry) {
+        long position = getLong(indexPosition(entry));
+        int noPlayers = getNumberOfPlayers(entry);
+        // compared against length minus the pack size so a huge offset can not overflow
+        if (noPlayers < 1 || position < dataStart()
+                || position > length - (long) noPlayers * CARDS_PER_PLAYER * 4) {
+            throw new IllegalStateException("entry " + entry + " has a corrupt index entry ("
+                    + noPlayers + " players at offset " + position + ")");
+        }
+        LinkedList<Card> pack = new LinkedList<Card>();
+        for (int i = 0; i < noPlayers * CARDS_PER_PLAYER; i++) {
+            pack.addLast(new Card(getInt(position + i * 4L)));
+        }
+        return pack;
+    }
+
+    /**
+     * Splits the archive into contiguous ranges of entries and hands each range
+     * to its own thread, which passes every pack in it to the consumer.
+     * @param partitions    int: the number of threads to split the work between
+     * @param consumer  PackConsumer: called for every pack, possibly from several
+     * threads at once
+     * @throws InterruptedException If interrupted while waiting for the threads
+     * @throws RuntimeException If a thread failed with one, rethrown once every thread
+     * has stopped
+     * @throws Error    If a thread failed with one, rethrown once every thread has stopped
+     */
+    public void forEachParallel(int partitions, final PackConsumer consumer) throws InterruptedException {
+        partitions = Math.max(1, Math.min(partitions, size));
+        Thread[] workers = new Thread[partitions];
+        final Throwable[] failure = new Throwable[1];
+        for (int i = 0; i < partitions; i++) {
+            final int from = (int) ((long) size * i / partitions);
+            final int to = (int) ((long) size * (i + 1) / partitions);
+            workers[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int entry = from; entry < to; entry++) {
+                            consumer.accept(entry, getNumberOfPlayers(entry), getPack(entry));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failure) {
+                            if (failure[0] == null) {
+                                failure[0] = e;
+                            }
+                        }
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        if (failure[0] instanceof RuntimeException) {
+            throw (RuntimeException) failure[0];
+        } else if (failure[0] instanceof Error) {
+            throw (Error) failure[0];
+        } else if (failure[0] != null) {
+            throw new RuntimeException(failure[0]);
+        }
+    }
+
+    /**
+     * Checks every entry of the archive in a single pass: that its index entry
+     * points at a whole pack inside the file, directly after the previous pack,
+     * and that no card has a negative value.
+     * @return LinkedList<String>: a description of each problem found, empty if
+     * the archive is valid
+     */
+    public LinkedList<String> validate() {
+        LinkedList<String> problems = new LinkedList<String>();
+        long expectedPosition = dataStart();
+        for (int entry = 0; entry < size; entry++) {
+            long position = getLong(indexPosition(entry));
+            int noPlayers = getNumberOfPlayers(entry);
+            if (noPlayers < 1) {
+                problems.addLast("entry " + entry + " has " + noPlayers + " players");
+                continue;
+            }
+            long packSize = (long) noPlayers * CARDS_PER_PLAYER * 4;
+            if (position != expectedPosition || position > length - packSize) {
+                problems.addLast("entry " + entry + " has an invalid offset " + position);
+            } else {
+                for (long p = position; p < position + packSize; p += 4) {
+                    if (getInt(p) < 0) {
+                        problems.addLast("entry " + entry + " contains a negative card value");
+                        break;
+                    }
+                }
+            }
+            // the next pack starts after this one even if this offset was wrong
+            expectedPosition += packSize;
+        }
+        if (problems.isEmpty() && expectedPosition != length) {
+            problems.addLast("archive has " + (length - expectedPosition)
+                    + " trailing bytes");
+        }
+        return problems;
+    }
+
+    /**
+     * Closes the file the archive was mapped from
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Works out the byte position of an entry in the index
+     * @param entry int: the index of the pack in the archive
+     * @return long: the position of its index entry
+     */
+    private long indexPosition(int entry) {
+        if (entry < 0 || entry >= size) {
+            throw new IndexOutOfBoundsException("entry " + entry + " is not in the archive");
+        }
+        return HEADER_SIZE + (long) entry * INDEX_ENTRY_SIZE;
+    }
+
+    /**
+     * Works out the byte position of the first pack, directly after the index
+     * @return long: the position the card values start at
+     */
+    private long dataStart() {
+        return HEADER_SIZE + (long) size * INDEX_ENTRY_SIZE;
+    }
+
+    /**
+     * Reads an int from the window holding the given position
+     * @param position  long: the byte position in the file
+     * @return int: the value read
+     */
+    private int getInt(long position) {
+        return windows[(int) (position / windowSize)].getInt((int) (position % windowSize));
+    }
+
+    /**
+     * Reads a long from the window holding the given position
+     * @param position  long: the byte position in the file
+     * @return long: the value read
+     */
+    private long getLong(long position) {
+        return windows[(int) (position / windowSize)].getLong((int) (position % windowSize));
+    }
+
+    /**
+     * Builds an archive from every pack file in a directory, in file name order.
+     * Each pack's number of players is taken from its number of cards.
+     * @param packDir   File: the directory holding the pack files
+     * @param archive   File: the archive file to create
+     * @return int: the number of packs written
+     * @throws IOException If a pack or the archive can not be read or written
+     * @throws IncorrectNumberOfCardsException If a pack does not hold a whole
+     * number of players' worth of cards
+     * @throws NumberFormatException    If a pack contains anything that is not an integer
+     */
+    public static int build(File packDir, File archive) throws IOException,
+            IncorrectNumberOfCardsException, NumberFormatException {
+        File[] packFiles = packDir.listFiles();
+        if (packFiles == null) {
+            throw new IOException(packDir + " is not a directory");
+        }
+        Arrays.sort(packFiles);
+        LinkedList<File> packs = new LinkedList<File>();
+        for (File f : packFiles) {
+            if (f.isFile()) {
+                packs.addLast(f);
+            }
+        }
+
+        long[] offsets = new long[packs.size()];
+        int[] players = new int[packs.size()];
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(archive)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(packs.size());
+            // the index is filled in once every pack's offset is known
+            out.write(new byte[packs.size() * INDEX_ENTRY_SIZE]);
+            long position = HEADER_SIZE + (long) packs.size() * INDEX_ENTRY_SIZE;
+            int entry = 0;
+            for (File f : packs) {
+                LinkedList<Card> pack = CardGame.readPack(f.getPath());
+                if (pack.isEmpty() || pack.size() % CARDS_PER_PLAYER != 0) {
+                    throw new IncorrectNumberOfCardsException();
+                }
+                offsets[entry] = position;
+                players[entry] = pack.size() / CARDS_PER_PLAYER;
+                for (Card c : pack) {
+                    out.writeInt(c.getValue());
+                }
+                position += pack.size() * 4;
+                entry++;
+            }
+        } finally {
+            out.close();
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(archive, "rw");
+        try {
+            ByteBuffer index = ByteBuffer.allocate(offsets.length * INDEX_ENTRY_SIZE);
+            for (int i = 0; i < offsets.length; i++) {
+                index.putLong(offsets[i]);
+                index.putInt(players[i]);
+            }
+            raf.seek(HEADER_SIZE);
+            raf.write(index.array());
+        } finally {
+            raf.close();
+        }
+        return offsets.length;
+    }
+
+    /**
+     * Command line tooling for pack archives. Usage:
+     * "build packDirectory archiveFile" or "validate archiveFile"
+     * @param args
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length == 3 && args[0].equals("build")) {
+                int count = PackArchive.build(new File(args[1]), new File(args[2]));
+                System.out.println("Wrote " + count + " packs to " + args[2]);
+            } else if (args.length == 2 && args[0].equals("validate")) {
+                PackArchive archive = new PackArchive(new File(args[1]));
+                try {
+                    LinkedList<String> problems = archive.validate();
+                    for (String problem : problems) {
+                        System.out.println(problem);
+                    }
+                    System.out.println(archive.size() + " packs checked, "
+                            + problems.size() + " problems found");
+                } finally {
+                    archive.close();
+                }
+            } else {
+                System.out.println("Usage: PackArchive build <packDirectory> <archiveFile>\n"
+                        + "       PackArchive validate <archiveFile>");
+            }
+        } catch (IncorrectNumberOfCardsException e) {
+            System.out.println("A pack does not hold 8 cards for every player.");
+        } catch (NumberFormatException e) {
+            System.out.println("A pack file is in an incorrect format.");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedList;
+
+public class PackArchiveTest {
+	File packDir;
+	File archiveFile;
+
+	@Before
+	public void setup() throws IOException {
+		// three packs for 1, 2 and 3 players, where every card in pack n has the value n
+		packDir = File.createTempFile("packs", "");
+		packDir.delete();
+		packDir.mkdirs();
+		for (int n = 1; n <= 3; n++) {
+			FileWriter writer = new FileWriter(new File(packDir, "pack" + n + ".txt"));
+			for (int i = 0; i < n * 8; i++) {
+				writer.write(n + "\n");
+			}
+			writer.close();
+		}
+		archiveFile = File.createTempFile("packs", ".cgpa");
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : packDir.listFiles()) {
+			f.delete();
+		}
+		packDir.delete();
+		archiveFile.delete();
+	}
+
+	@Test
+	public void testRandomAccess() throws Exception {
+		assertEquals(3, PackArchive.build(packDir, archiveFile));
+		PackArchive archive = new PackArchive(archiveFile);
+		assertEquals(3, archive.size());
+		assertEquals(2, archive.getNumberOfPlayers(1));
+		LinkedList<Card> pack = archive.getPack(2);
+		assertEquals(24, pack.size());
+		for (Card c : pack) {
+			assertEquals(3, c.getValue());
+		}
+		assertTrue(archive.validate().isEmpty());
+		archive.close();
+	}
+
+	@Test
+	public void testForEachParallel() throws Exception {
+		PackArchive.build(packDir, archiveFile);
+		PackArchive archive = new PackArchive(archiveFile);
+		final int[] cardsSeen = new int[3];
+		archive.forEachParallel(2, new PackArchive.PackConsumer() {
+			public void accept(int entry, int noPlayers, LinkedList<Card> pack) {
+				cardsSeen[entry] = pack.size();
+			}
+		});
+		assertArrayEquals(new int[] {8, 16, 24}, cardsSeen);
+		archive.close();
+	}
+
+	@Test(expected = AssertionError.class)
+	public void testForEachParallelRethrowsErrors() throws Exception {
+		PackArchive.build(packDir, archiveFile);
+		PackArchive archive = new PackArchive(archiveFile);
+		try {
+			archive.forEachParallel(3, new PackArchive.PackConsumer() {
+				public void accept(int entry, int noPlayers, LinkedList<Card> pack) {
+					if (entry == 1) {
+						throw new AssertionError("consumer failed");
+					}
+				}
+			});
+		} finally {
+			archive.close();
+		}
+	}
+
+	@Test
+	public void testValidateFindsCorruptEntry() throws Exception {
+		PackArchive.build(packDir, archiveFile);
+		RandomAccessFile raf = new RandomAccessFile(archiveFile, "rw");
+		raf.seek(raf.length() - 4);
+		raf.writeInt(-1);
+		raf.close();
+		PackArchive archive = new PackArchive(archiveFile);
+		LinkedList<String> problems = archive.validate();
+		assertEquals(1, problems.size());
+		assertEquals("entry 2 contains a negative card value", problems.getFirst());
+		archive.close();
+	}
+
+	@Test
+	public void testValidateReportsBadOffsetOnce() throws Exception {
+		PackArchive.build(packDir, archiveFile);
+		RandomAccessFile raf = new RandomAccessFile(archiveFile, "rw");
+		raf.seek(PackArchive.HEADER_SIZE);
+		raf.writeLong(4);
+		raf.close();
+		PackArchive archive = new PackArchive(archiveFile);
+		LinkedList<String> problems = archive.validate();
+		assertEquals(1, problems.size());
+		assertEquals("entry 0 has an invalid offset 4", problems.getFirst());
+		archive.close();
+	}
+
+	@Test
+	public void testSmallWindows() throws Exception {
+		// windows far smaller than a pack, so values and offsets cross window edges
+		PackArchive.build(packDir, archiveFile);
+		PackArchive archive = new PackArchive(archiveFile, 20);
+		for (int entry = 0; entry < 3; entry++) {
+			assertEquals(entry + 1, archive.getNumberOfPlayers(entry));
+			LinkedList<Card> pack = archive.getPack(entry);
+			assertEquals((entry + 1) * 8, pack.size());
+			for (Card c : pack) {
+				assertEquals(entry + 1, c.getValue());
+			}
+		}
+		assertTrue(archive.validate().isEmpty());
+		archive.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetPackRejectsCorruptOffset() throws Exception {
+		PackArchive.build(packDir, archiveFile);
+		// point the first entry at the header
+		RandomAccessFile raf = new RandomAccessFile(archiveFile, "rw");
+		raf.seek(PackArchive.HEADER_SIZE);
+		raf.writeLong(0);
+		raf.close();
+		PackArchive archive = new PackArchive(archiveFile);
+		try {
+			archive.getPack(0);
+		} finally {
+			archive.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetPackRejectsOverflowingOffset() throws Exception {
+		PackArchive.build(packDir, archiveFile);
+		// an offset this close to the largest long overflows when the pack size is added
+		RandomAccessFile raf = new RandomAccessFile(archiveFile, "rw");
+		raf.seek(PackArchive.HEADER_SIZE);
+		raf.writeLong(Long.MAX_VALUE - 4);
+		raf.close();
+		PackArchive archive = new PackArchive(archiveFile);
+		try {
+			assertEquals(1, archive.validate().size());
+			archive.getPack(0);
+		} finally {
+			archive.close();
+		}
+	}
+
+	@Test(expected = IncorrectNumberOfCardsException.class)
+	public void testBuildRejectsPartialPack() throws Exception {
+		FileWriter writer = new FileWriter(new File(packDir, "pack4.txt"));
+		writer.write("1\n2\n3\n");
+		writer.close();
+		PackArchive.build(packDir, archiveFile);
+	}
+}
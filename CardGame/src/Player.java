@@ -1,4 +1,5 @@
 
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 
 /**
@@ -7,6 +8,10 @@ import java.util.LinkedList;
  * is finished.
  */
 public class Player extends Thread {
+    /**
+     * The number of round index entries held in memory before they are written
+     */
+    private static final int INDEX_FLUSH_ENTRIES = 1024;
     /**
      * Controls the write to file operations for the player
      */
@@ -40,10 +45,40 @@ public class Player extends Thread {
      * Whether this player has finished the game
      */
     private boolean exit = false;
+    /**
+     * The ID of the player who won the game, once it has ended
+     */
+    private int winnerID = -1;
     /**
      * The path of this player's output file
      */
     private String writePath;
+    /**
+     * The path of the side-car file indexing where each round starts in the output
+     * file. It holds one long per round, so round r's offset is at byte r * 8.
+     */
+    private String indexPath;
+    /**
+     * The number of bytes written to this player's output file so far
+     */
+    private long bytesWritten = 0;
+    /**
+     * Round index entries not yet written to the index file
+     */
+    private ByteBuffer pendingIndex = ByteBuffer.allocate(INDEX_FLUSH_ENTRIES * 8);
+    /**
+     * The hand position exchanged in each round since the last sync point
+     */
+    private int[] roundPositions;
+    /**
+     * The card discarded in each round since the last sync point
+     */
+    private Card[] roundDiscards;
+    /**
+     * The output of each round since the last sync point, held back until the
+     * game knows the round really happened
+     */
+    private String[] roundLogs;
 
     /**
      * Constructor for the player that assigns its ID and connects it to
@@ -57,6 +92,7 @@ public class Player extends Thread {
         this.game = game;
         this.fs = fs;
         this.writePath = "/player" + playerID + "_output.txt";
+        this.indexPath = "/player" + playerID + "_output.idx";
     }
 
     /**
@@ -89,19 +125,18 @@ public class Player extends Thread {
     }
 
     /**
-     * Method called when the game has ended
+     * Method called when the game has ended. The player writes the result to its
+     * own output once it leaves the game.
      * @param winnerID int: The playerID of the winning player
      */
     public void finish(int winnerID) {
-        if (playerID != winnerID) {
-            writeToFile("player " + winnerID + " has informed player " + playerID +
-                    " that they have won");
-        }
+        this.winnerID = winnerID;
         exit = true;
     }
 
     @Override
     public void run() {
+        startRound();
         writeToFile("initial hand " + getHand());
 
         // Creates a list containing all the Card indices that do not match the playerID
@@ -113,13 +148,36 @@ public class Player extends Thread {
         }
         // round "0", check the initial cards.
         game.finishTurn(playerID, hand);
+        int rounds = game.getRoundsPerSync();
+        roundPositions = new int[rounds];
+        roundDiscards = new Card[rounds];
+        roundLogs = new String[rounds];
         while (!exit) {
-            exchangeCards();
-            // check if all the cards match or game has ended
-            game.finishTurn(playerID, hand);
+            if (rounds == 1) {
+                startRound();
+                writeToFile(exchangeCards(0));
+                // check if all the cards match or game has ended
+                game.finishTurn(playerID, hand);
+            } else {
+                // play ahead, the game rolls back any rounds after the first win
+                Card[][] roundHands = new Card[rounds][];
+                for (int r = 0; r < rounds; r++) {
+                    roundLogs[r] = exchangeCards(r);
+                    roundHands[r] = hand.clone();
+                }
+                // the kept rounds are written here, not while the game holds every player
+                commitRounds(game.finishRounds(playerID, roundHands));
+            }
+        }
+        if (playerID == winnerID) {
+            writeToFile("player " + playerID + " wins");
+        } else {
+            writeToFile("player " + winnerID + " has informed player " + playerID +
+                    " that they have won");
         }
         writeToFile("player " + playerID + " exiting game\nfinal hand: " +
                 getHand());
+        flushIndex();
         game.playerLeaving();
     }
 
@@ -133,33 +191,99 @@ public class Player extends Thread {
                 " " + hand[2].getValue() + " " + hand[3].getValue();
     }
 
+    /**
+     * Copies the integer value of each card in this player's hand.
+     * @return int[]: the values in hand order
+     */
+    public int[] getHandValues() {
+        int[] values = new int[hand.length];
+        for (int i = 0; i < hand.length; i++) {
+            values[i] = hand[i].getValue();
+        }
+        return values;
+    }
+
     /**
      * Writes the given string to this player's output file
      * @param text the text to be written
      */
     public void writeToFile(String text) {
         fs.writeToFile(writePath, text + "\n");
+        // the output is plain ASCII, so one character is one byte
+        bytesWritten += text.length() + 1;
+    }
+
+    /**
+     * Records that the next round starts at the current end of the output file,
+     * so that readers can seek straight to it.
+     */
+    private void startRound() {
+        pendingIndex.putLong(bytesWritten);
+        if (!pendingIndex.hasRemaining()) {
+            flushIndex();
+        }
+    }
+
+    /**
+     * Writes any held back round index entries to the index file
+     */
+    private void flushIndex() {
+        if (pendingIndex.position() > 0) {
+            fs.writeBytesToFile(indexPath, pendingIndex.array(), pendingIndex.position());
+            pendingIndex.clear();
+        }
     }
     
     /**
      * To be used in a turn, this completes a discard and a draw operation
-     * for this player.
+     * for this player, remembering what was exchanged so it can be undone.
+     * @param round int: The round's position since the last sync point
+     * @return String: the output describing the turn
      */
-    private void exchangeCards() {
-    	// make space in hand
-        int newHandPosition = incorrectCards.removeFirst();
+    private String exchangeCards(int round) {
+    	// make space in hand. A hand with no incorrect cards has already won, so this
+    	// round is only being played ahead and will be rolled back.
+        int newHandPosition = incorrectCards.isEmpty() ? 0 : incorrectCards.removeFirst();
+        roundPositions[round] = newHandPosition;
+        roundDiscards[round] = hand[newHandPosition];
         afterDeck.addCard(hand[newHandPosition]);
-        writeToFile("discards a " + hand[newHandPosition].getValue() +
-                " to deck " + afterDeck.getDeckID());
+        String text = "discards a " + hand[newHandPosition].getValue() +
+                " to deck " + afterDeck.getDeckID();
 
         // take card
         hand[newHandPosition] = beforeDeck.takeCard();
-        writeToFile("draws a " + hand[newHandPosition].getValue() +
-                " from deck " + beforeDeck.getDeckID() + "\nhand is now " + getHand());
+        text += "\ndraws a " + hand[newHandPosition].getValue() +
+                " from deck " + beforeDeck.getDeckID() + "\nhand is now " + getHand();
 
         // check if card matches set
         if (hand[newHandPosition].getValue() != playerID) {
             incorrectCards.addLast(newHandPosition);
         }
+        return text;
+    }
+
+    /**
+     * Reverses the exchange made in a round played ahead, returning both cards
+     * to their decks. Rounds must be undone latest first, across all players.
+     * @param round int: The round's position since the last sync point
+     */
+    public void undoRound(int round) {
+        int position = roundPositions[round];
+        afterDeck.undoAdd();
+        beforeDeck.undoTake(hand[position]);
+        hand[position] = roundDiscards[round];
+    }
+
+    /**
+     * Writes out the held back output of the rounds played since the last sync
+     * point that the game has kept.
+     * @param rounds    int: The number of rounds to write
+     */
+    private void commitRounds(int rounds) {
+        for (int r = 0; r < rounds; r++) {
+            startRound();
+            writeToFile(roundLogs[r]);
+            roundLogs[r] = null;
+        }
     }
 }